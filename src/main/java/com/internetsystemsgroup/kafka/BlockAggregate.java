@@ -0,0 +1,145 @@
+/*
+    MIT License
+    Copyright 2018 Internet Systems Group, Inc.
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+    associated documentation files (the "Software"), to deal in the Software without restriction,
+    including without limitation the rights to use, copy, modify, merge, publish, distribute,
+    sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+    is furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all copies or
+    substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+    BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+    NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+    DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.internetsystemsgroup.kafka;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Transaction;
+
+/**
+ * BlockAggregate summarizes a contiguous run of blocks: transaction count, gas used, gas price
+ * percentiles and top senders.  It is filled in while transactions are written, and block level
+ * aggregates are merged into window aggregates, so no transaction is visited twice.
+ */
+class BlockAggregate {
+    // Senders tracked per listed sender, trading memory for accuracy of the Misra-Gries counts
+    private static final int SENDER_SLOTS = 10;
+
+    private final int topSenders;
+    private final GasPriceHistogram gasPrices = new GasPriceHistogram();
+    private final TopSenders senders;
+
+    private long firstBlock = -1;
+    private long lastBlock = -1;
+    private long firstTimestamp = -1;
+    private long lastTimestamp = -1;
+    private long txCount = 0;
+    private BigInteger gasUsed = BigInteger.ZERO;
+
+    BlockAggregate(int topSenders) {
+        this.topSenders = topSenders;
+        this.senders = new TopSenders(topSenders * SENDER_SLOTS);
+    }
+
+    void addBlock(EthBlock.Block block) {
+        addBlock(block.getNumber().longValue(), block.getTimestamp().longValue(), block.getGasUsed());
+    }
+
+    void addBlock(long number, long timestamp, BigInteger blockGasUsed) {
+        if (isEmpty()) {
+            firstBlock = number;
+            firstTimestamp = timestamp;
+        }
+        lastBlock = number;
+        lastTimestamp = timestamp;
+        gasUsed = gasUsed.add(blockGasUsed);
+    }
+
+    void addTransaction(Transaction tx) {
+        addTransaction(tx.getFrom(), tx.getGasPrice().longValue());
+    }
+
+    void addTransaction(String from, long gasPrice) {
+        txCount++;
+        gasPrices.add(gasPrice);
+        senders.add(from);
+    }
+
+    void merge(BlockAggregate other) {
+        if (other.isEmpty())
+            return;
+        if (isEmpty()) {
+            firstBlock = other.firstBlock;
+            firstTimestamp = other.firstTimestamp;
+        }
+        lastBlock = other.lastBlock;
+        lastTimestamp = other.lastTimestamp;
+        txCount += other.txCount;
+        gasUsed = gasUsed.add(other.gasUsed);
+        gasPrices.merge(other.gasPrices);
+        senders.merge(other.senders);
+    }
+
+    void reset() {
+        firstBlock = -1;
+        lastBlock = -1;
+        firstTimestamp = -1;
+        lastTimestamp = -1;
+        txCount = 0;
+        gasUsed = BigInteger.ZERO;
+        gasPrices.reset();
+        senders.reset();
+    }
+
+    boolean isEmpty() {
+        return firstBlock < 0;
+    }
+
+    long getFirstBlock() {
+        return firstBlock;
+    }
+
+    /**
+     * @return the timestamp of the first block, in seconds
+     */
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    /**
+     * Format as a line in the same comma separated style as transactions.  Top senders are
+     * written as address:count pairs separated by semicolons.
+     *
+     * @param kind
+     *            what the aggregate covers, e.g. block
+     */
+    String format(String kind) {
+        StringBuilder sb = new StringBuilder()
+                .append(kind).append(',')
+                .append(firstBlock).append(',')
+                .append(lastBlock).append(',')
+                .append(firstTimestamp).append(',')
+                .append(lastTimestamp).append(',')
+                .append(txCount).append(',')
+                .append(gasUsed).append(',')
+                .append(gasPrices.quantile(0.5)).append(',')
+                .append(gasPrices.quantile(0.9)).append(',')
+                .append(gasPrices.quantile(0.99)).append(',');
+
+        String separator = "";
+        for (Map.Entry<String, Long> e : senders.top(topSenders)) {
+            sb.append(separator).append(e.getKey()).append(':').append(e.getValue());
+            separator = ";";
+        }
+        return sb.toString();
+    }
+}
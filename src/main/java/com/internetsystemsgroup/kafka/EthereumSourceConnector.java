@@ -37,18 +37,52 @@ public class EthereumSourceConnector extends SourceConnector {
     public static final String TOPIC_CONFIG = "topic";
     public static final String ENDPOINT_CONFIG = "endpoint";
     public static final String TASK_BATCH_SIZE_CONFIG = "batch.size";
+    public static final String MEMPOOL_TOPIC_CONFIG = "mempool.topic";
+    public static final String MEMPOOL_DEDUP_SIZE_CONFIG = "mempool.dedup.size";
+    public static final String MEMPOOL_DEDUP_TTL_MS_CONFIG = "mempool.dedup.ttl.ms";
+    public static final String AGGREGATE_TOPIC_CONFIG = "aggregate.topic";
+    public static final String AGGREGATE_WINDOW_BLOCKS_CONFIG = "aggregate.window.blocks";
+    public static final String AGGREGATE_WINDOW_MS_CONFIG = "aggregate.window.ms";
+    public static final String AGGREGATE_TOP_SENDERS_CONFIG = "aggregate.top.senders";
 
     public static final int DEFAULT_TASK_BATCH_SIZE = 2000;
+    public static final int DEFAULT_MEMPOOL_DEDUP_SIZE = 200000;
+    public static final long DEFAULT_MEMPOOL_DEDUP_TTL_MS = 10 * 60 * 1000L;
+    public static final int DEFAULT_AGGREGATE_WINDOW_BLOCKS = 100;
+    public static final long DEFAULT_AGGREGATE_WINDOW_MS = 60 * 60 * 1000L;
+    public static final int DEFAULT_AGGREGATE_TOP_SENDERS = 10;
 
     private static final ConfigDef CONFIG_DEF = new ConfigDef()
             .define(ENDPOINT_CONFIG, Type.STRING, null, Importance.HIGH, "Ethereum server endpoint must be specified")
             .define(TOPIC_CONFIG, Type.LIST, Importance.HIGH, "The topic to publish data to")
             .define(TASK_BATCH_SIZE_CONFIG, Type.INT, DEFAULT_TASK_BATCH_SIZE, Importance.LOW,
-                    "The maximum number of records the Source task can read from file one time");
+                    "The maximum number of records the Source task can read from file one time")
+            .define(MEMPOOL_TOPIC_CONFIG, Type.STRING, null, Importance.MEDIUM,
+                    "The topic to publish pending transactions to. Pending transactions are not read unless this is set")
+            .define(MEMPOOL_DEDUP_SIZE_CONFIG, Type.INT, DEFAULT_MEMPOOL_DEDUP_SIZE,
+                    ConfigDef.Range.between(1, RecentTransactionHashes.MAX_ENTRIES), Importance.LOW,
+                    "The maximum number of recent pending transaction hashes remembered for deduplication")
+            .define(MEMPOOL_DEDUP_TTL_MS_CONFIG, Type.LONG, DEFAULT_MEMPOOL_DEDUP_TTL_MS, ConfigDef.Range.atLeast(1), Importance.LOW,
+                    "How long a pending transaction hash is remembered for deduplication")
+            .define(AGGREGATE_TOPIC_CONFIG, Type.STRING, null, Importance.MEDIUM,
+                    "The topic to publish block and window aggregates to. Aggregates are not computed unless this is set")
+            .define(AGGREGATE_WINDOW_BLOCKS_CONFIG, Type.INT, DEFAULT_AGGREGATE_WINDOW_BLOCKS, ConfigDef.Range.atLeast(0), Importance.LOW,
+                    "The number of blocks in each tumbling window aggregate, or 0 to disable block windows")
+            .define(AGGREGATE_WINDOW_MS_CONFIG, Type.LONG, DEFAULT_AGGREGATE_WINDOW_MS, ConfigDef.Range.atLeast(0), Importance.LOW,
+                    "The length of each tumbling window aggregate by block timestamp, or 0 to disable time windows")
+            .define(AGGREGATE_TOP_SENDERS_CONFIG, Type.INT, DEFAULT_AGGREGATE_TOP_SENDERS, ConfigDef.Range.atLeast(1), Importance.LOW,
+                    "The number of top senders included in each aggregate");
 
     private String filename;
     private String topic;
     private int batchSize;
+    private String mempoolTopic;
+    private int mempoolDedupSize;
+    private long mempoolDedupTtlMs;
+    private String aggregateTopic;
+    private int aggregateWindowBlocks;
+    private long aggregateWindowMs;
+    private int aggregateTopSenders;
 
     @Override
     public String version() {
@@ -65,6 +99,13 @@ public class EthereumSourceConnector extends SourceConnector {
         }
         topic = topics.get(0);
         batchSize = parsedConfig.getInt(TASK_BATCH_SIZE_CONFIG);
+        mempoolTopic = parsedConfig.getString(MEMPOOL_TOPIC_CONFIG);
+        mempoolDedupSize = parsedConfig.getInt(MEMPOOL_DEDUP_SIZE_CONFIG);
+        mempoolDedupTtlMs = parsedConfig.getLong(MEMPOOL_DEDUP_TTL_MS_CONFIG);
+        aggregateTopic = parsedConfig.getString(AGGREGATE_TOPIC_CONFIG);
+        aggregateWindowBlocks = parsedConfig.getInt(AGGREGATE_WINDOW_BLOCKS_CONFIG);
+        aggregateWindowMs = parsedConfig.getLong(AGGREGATE_WINDOW_MS_CONFIG);
+        aggregateTopSenders = parsedConfig.getInt(AGGREGATE_TOP_SENDERS_CONFIG);
     }
 
     @Override
@@ -81,6 +122,15 @@ public class EthereumSourceConnector extends SourceConnector {
             config.put(ENDPOINT_CONFIG, filename);
         config.put(TOPIC_CONFIG, topic);
         config.put(TASK_BATCH_SIZE_CONFIG, String.valueOf(batchSize));
+        if (mempoolTopic != null)
+            config.put(MEMPOOL_TOPIC_CONFIG, mempoolTopic);
+        config.put(MEMPOOL_DEDUP_SIZE_CONFIG, String.valueOf(mempoolDedupSize));
+        config.put(MEMPOOL_DEDUP_TTL_MS_CONFIG, String.valueOf(mempoolDedupTtlMs));
+        if (aggregateTopic != null)
+            config.put(AGGREGATE_TOPIC_CONFIG, aggregateTopic);
+        config.put(AGGREGATE_WINDOW_BLOCKS_CONFIG, String.valueOf(aggregateWindowBlocks));
+        config.put(AGGREGATE_WINDOW_MS_CONFIG, String.valueOf(aggregateWindowMs));
+        config.put(AGGREGATE_TOP_SENDERS_CONFIG, String.valueOf(aggregateTopSenders));
         configs.add(config);
         return configs;
     }
@@ -23,11 +23,19 @@ import java.io.*;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 import org.slf4j.Logger;
@@ -35,7 +43,9 @@ import org.slf4j.LoggerFactory;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Transaction;
 import org.web3j.protocol.http.HttpService;
+import rx.Subscription;
 
 /**
  * EthereumSourceTask reads transactions from an Ethereum server using the web3j API
@@ -45,6 +55,9 @@ public class EthereumSourceTask extends SourceTask {
     public static final String ENDPOINT_FIELD = "endpoint";
     public  static final String POSITION_FIELD = "position";
     private static final Schema VALUE_SCHEMA = Schema.STRING_SCHEMA;
+    // Pending transaction lookups allowed in flight at once
+    private static final int MAX_PENDING_FETCHES = 64;
+    private static final long DROPPED_LOG_INTERVAL_MS = 60 * 1000L;
 
     private String endPoint;
     private PipedInputStream stream;
@@ -64,6 +77,20 @@ public class EthereumSourceTask extends SourceTask {
 
     private Web3j web3j;
 
+    private String mempoolTopic = null;
+    private RecentTransactionHashes recentPendingHashes;
+    private BlockingQueue<SourceRecord> pendingRecords;
+    private Subscription mempoolSubscription;
+    private final Semaphore pendingFetches = new Semaphore(MAX_PENDING_FETCHES);
+    private final AtomicLong droppedPending = new AtomicLong();
+    private final AtomicLong failedPending = new AtomicLong();
+    private long summaryLoggedAt = 0;
+    private volatile Throwable mempoolError = null;
+
+    private String aggregateTopic = null;
+    private BlockAggregate blockAggregate;
+    private final List<TumblingWindow> aggregateWindows = new ArrayList<>();
+    private BlockingQueue<SourceRecord> aggregateRecords;
 
     @Override
     public String version() {
@@ -96,6 +123,38 @@ public class EthereumSourceTask extends SourceTask {
         // Setup the reader
         reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
 
+        aggregateTopic = props.get(EthereumSourceConnector.AGGREGATE_TOPIC_CONFIG);
+        if (aggregateTopic != null) {
+            int topSenders = Integer.parseInt(props.get(EthereumSourceConnector.AGGREGATE_TOP_SENDERS_CONFIG));
+            long windowBlocks = Long.parseLong(props.get(EthereumSourceConnector.AGGREGATE_WINDOW_BLOCKS_CONFIG));
+            long windowMs = Long.parseLong(props.get(EthereumSourceConnector.AGGREGATE_WINDOW_MS_CONFIG));
+            blockAggregate = new BlockAggregate(topSenders);
+            if (windowBlocks > 0)
+                aggregateWindows.add(TumblingWindow.ofBlocks(windowBlocks, topSenders));
+            if (windowMs > 0)
+                aggregateWindows.add(TumblingWindow.ofMillis(windowMs, topSenders));
+            // One record per block, so there is no need to bound this
+            aggregateRecords = new LinkedBlockingQueue<>();
+        }
+
+        // Subscribe before catching up on blocks, which replays on this thread
+        mempoolTopic = props.get(EthereumSourceConnector.MEMPOOL_TOPIC_CONFIG);
+        if (mempoolTopic != null) {
+            recentPendingHashes = new RecentTransactionHashes(
+                    Integer.parseInt(props.get(EthereumSourceConnector.MEMPOOL_DEDUP_SIZE_CONFIG)),
+                    Long.parseLong(props.get(EthereumSourceConnector.MEMPOOL_DEDUP_TTL_MS_CONFIG)));
+            pendingRecords = new ArrayBlockingQueue<>(batchSize);
+
+            mempoolSubscription = web3j.ethPendingTransactionHashObservable()
+                    .subscribe(txHash -> {
+                        writePendingTransaction(txHash);
+                    }, e -> {
+                        // Surfaced by poll() so the task fails instead of silently stopping
+                        log.error("Pending transaction subscription failed: ", e);
+                        mempoolError = e;
+                    });
+        }
+
         //TODO determine last processed block and transaction
         startingBlock = 5470634L;
 
@@ -115,25 +174,123 @@ public class EthereumSourceTask extends SourceTask {
     {
         log.info("Writing block: " + block.getBlock().getNumber());
 
+        if (blockAggregate != null) {
+            blockAggregate.reset();
+            blockAggregate.addBlock(block.getBlock());
+        }
+
         for (EthBlock.TransactionResult tx : block.getResult().getTransactions())
         {
             EthBlock.TransactionObject txObj = (EthBlock.TransactionObject) tx;
 
             log.info("Writing transaction: " + txObj.getTransactionIndex());
-            pw.println(
-                    txObj.getHash() + "," +
-                    txObj.getFrom() + "," +
-                    txObj.getTo() + "," +
-                    txObj.getValue() + "," +
-                    txObj.getGasPrice() + "," +
-                    txObj.getGas() + "," +
-                    txObj.getInput() + "," +
-                    txObj.getCreates() + "," +
-                    txObj.getRaw()
-            );
+            pw.println(formatTransaction(txObj));
+
+            if (blockAggregate != null)
+                blockAggregate.addTransaction(txObj);
         }
 
         pw.flush();  // TODO is this needed
+
+        if (blockAggregate != null)
+            writeAggregates();
+    }
+
+    /**
+     * Queue the aggregate for the block just written, and roll it into the tumbling windows.
+     */
+    private void writeAggregates()
+    {
+        queueAggregate(blockAggregate.format("block"));
+
+        for (TumblingWindow window : aggregateWindows) {
+            String completed = window.add(blockAggregate);
+            if (completed != null)
+                queueAggregate(completed);
+        }
+    }
+
+    private void queueAggregate(String line) {
+        aggregateRecords.add(new SourceRecord(null, null, aggregateTopic, null,
+                null, null, VALUE_SCHEMA, line, System.currentTimeMillis()));
+    }
+
+    /**
+     * Queue a pending transaction for the mempool topic.  Nodes announce the same pending
+     * transaction many times, so hashes seen recently are dropped before the transaction is
+     * fetched.  Fetches run asynchronously so the filter keeps being polled, and if too many are
+     * in flight or poll() falls behind, new pending transactions are dropped rather than buffered.
+     *
+     * @param txHash
+     *            the hash of the pending transaction
+     */
+    private void writePendingTransaction(String txHash)
+    {
+        if (recentPendingHashes.contains(txHash))
+            return;
+
+        // A hash dropped for lack of a permit is never recorded, so a later announcement is fetched
+        if (!pendingFetches.tryAcquire()) {
+            droppedPending.incrementAndGet();
+            return;
+        }
+        if (!recentPendingHashes.add(txHash, System.currentTimeMillis())) {
+            pendingFetches.release();
+            return;
+        }
+
+        web3j.ethGetTransactionByHash(txHash).sendAsync().whenComplete((response, e) -> {
+            pendingFetches.release();
+
+            if (e != null || response.hasError()) {
+                if (e != null)
+                    log.debug("Failed to read pending transaction " + txHash, e);
+                else
+                    log.debug("Failed to read pending transaction " + txHash + ": " + response.getError().getMessage());
+                failedPending.incrementAndGet();
+                recentPendingHashes.remove(txHash);
+                return;
+            }
+
+            Optional<Transaction> tx = response.getTransaction();
+            // The transaction is not visible yet or was already replaced
+            if (!tx.isPresent()) {
+                recentPendingHashes.remove(txHash);
+                return;
+            }
+
+            // Pending transactions cannot be replayed, so they carry no source offset
+            SourceRecord record = new SourceRecord(null, null, mempoolTopic, null,
+                    null, null, VALUE_SCHEMA, formatTransaction(tx.get()), System.currentTimeMillis());
+            if (!pendingRecords.offer(record))
+                droppedPending.incrementAndGet();
+        });
+    }
+
+    private void logPendingSummary() {
+        long now = System.currentTimeMillis();
+        if (now - summaryLoggedAt < DROPPED_LOG_INTERVAL_MS)
+            return;
+        summaryLoggedAt = now;
+
+        long dropped = droppedPending.getAndSet(0);
+        if (dropped > 0)
+            log.warn("Dropped {} pending transactions since the last report", dropped);
+        long failed = failedPending.getAndSet(0);
+        if (failed > 0)
+            log.warn("Failed to read {} pending transactions since the last report", failed);
+    }
+
+    private String formatTransaction(Transaction tx) {
+        return tx.getHash() + "," +
+                tx.getFrom() + "," +
+                tx.getTo() + "," +
+                tx.getValue() + "," +
+                tx.getGasPrice() + "," +
+                tx.getGas() + "," +
+                tx.getInput() + "," +
+                tx.getCreates() + "," +
+                tx.getRaw();
     }
 
     @Override
@@ -150,8 +307,25 @@ public class EthereumSourceTask extends SourceTask {
             if (readerCopy == null)
                 return null;
 
+            if (mempoolError != null)
+                throw new ConnectException("Pending transaction subscription failed", mempoolError);
+            if (pendingRecords != null)
+                logPendingSummary();
+
             ArrayList<SourceRecord> records = null;
 
+            // Side topics get at most a quarter of each batch, so they cannot starve the pipe
+            int sideLimit = Math.max(1, batchSize / 4);
+            for (BlockingQueue<SourceRecord> queue : Arrays.asList(aggregateRecords, pendingRecords)) {
+                if (queue != null && !queue.isEmpty()) {
+                    if (records == null)
+                        records = new ArrayList<>();
+                    queue.drainTo(records, sideLimit - records.size());
+                    if (records.size() >= sideLimit)
+                        break;
+                }
+            }
+
             int nread = 0;
             while (readerCopy.ready()) {
                 nread = readerCopy.read(buffer, offset, buffer.length - offset);
@@ -183,7 +357,7 @@ public class EthereumSourceTask extends SourceTask {
                 }
             }
 
-            if (nread <= 0)
+            if (nread <= 0 && records == null)
                 synchronized (this) {
                     this.wait(1000);
                 }
@@ -229,6 +403,8 @@ public class EthereumSourceTask extends SourceTask {
     @Override
     public void stop() {
         log.trace("Stopping");
+        if (mempoolSubscription != null)
+            mempoolSubscription.unsubscribe();
         pw.close();
         // TODO
 //        synchronized (this) {
@@ -0,0 +1,86 @@
+/*
+    MIT License
+    Copyright 2018 Internet Systems Group, Inc.
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+    associated documentation files (the "Software"), to deal in the Software without restriction,
+    including without limitation the rights to use, copy, modify, merge, publish, distribute,
+    sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+    is furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all copies or
+    substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+    BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+    NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+    DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.internetsystemsgroup.kafka;
+
+import java.util.Arrays;
+
+/**
+ * GasPriceHistogram estimates gas price percentiles using logarithmically sized buckets.
+ *
+ * Every estimate is within about 1% of the true value, memory is fixed, and two histograms can be
+ * merged by adding their bucket counts, which lets block level histograms be rolled up into windows.
+ */
+class GasPriceHistogram {
+    private static final double GAMMA = 1.02;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    // Covers prices up to about 4e17 wei
+    private static final int BUCKETS = 2048;
+
+    private final long[] counts = new long[BUCKETS];
+    private long zeroCount = 0;
+    private long count = 0;
+
+    void add(long gasPrice) {
+        if (gasPrice < 1) {
+            zeroCount++;
+        } else {
+            int index = (int) Math.ceil(Math.log(gasPrice) / LOG_GAMMA);
+            counts[Math.min(index, BUCKETS - 1)]++;
+        }
+        count++;
+    }
+
+    void merge(GasPriceHistogram other) {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    void reset() {
+        Arrays.fill(counts, 0L);
+        zeroCount = 0;
+        count = 0;
+    }
+
+    /**
+     * Estimate a percentile.
+     *
+     * @param quantile
+     *            the quantile, between 0 and 1
+     * @return the estimated gas price, or 0 if nothing has been added
+     */
+    long quantile(double quantile) {
+        if (count == 0)
+            return 0;
+
+        long rank = (long) (quantile * (count - 1));
+        long seen = zeroCount;
+        if (seen > rank)
+            return 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen > rank)
+                return Math.round(2 * Math.pow(GAMMA, i) / (1 + GAMMA));
+        }
+        return Math.round(2 * Math.pow(GAMMA, BUCKETS - 1) / (1 + GAMMA));
+    }
+}
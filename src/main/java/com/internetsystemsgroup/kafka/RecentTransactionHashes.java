@@ -0,0 +1,201 @@
+/*
+    MIT License
+    Copyright 2018 Internet Systems Group, Inc.
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+    associated documentation files (the "Software"), to deal in the Software without restriction,
+    including without limitation the rights to use, copy, modify, merge, publish, distribute,
+    sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+    is furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all copies or
+    substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+    BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+    NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+    DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.internetsystemsgroup.kafka;
+
+/**
+ * RecentTransactionHashes remembers the most recently seen transaction hashes so that repeated
+ * announcements of the same pending transaction can be dropped.
+ *
+ * Hashes are reduced to their leading 64 bits and kept in an open addressing table of primitive
+ * longs, so memory is fixed at construction time, at up to about 80 bytes per entry.  An entry is
+ * evicted once it is older than the time to live, or when the set is full and a new hash arrives,
+ * whichever comes first.
+ *
+ * Methods are synchronized because hashes are added on the subscription thread and removed from
+ * the threads completing transaction lookups.
+ */
+class RecentTransactionHashes {
+    static final int MAX_ENTRIES = 2000000;
+
+    private static final long EMPTY = 0L;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Open addressing table with linear probing, kept at most half full.  Each key records the
+    // ring position it was added at, so a stale ring entry never evicts a newer add of that key.
+    private final long[] table;
+    private final int[] tableRing;
+    private final int mask;
+    private int size = 0;
+
+    // Insertion order ring, used for eviction.  Entries whose key was removed early stay in the
+    // ring until they reach the head or the ring is compacted, and do not count towards the limit.
+    private final long[] ringKeys;
+    private final long[] ringTimes;
+    private int ringHead = 0;
+    private int ringSize = 0;
+
+    RecentTransactionHashes(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || maxEntries > MAX_ENTRIES)
+            throw new IllegalArgumentException("maxEntries must be between 1 and " + MAX_ENTRIES);
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+
+        // Smallest power of two of at least twice the entries
+        int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+        table = new long[capacity];
+        tableRing = new int[capacity];
+        mask = capacity - 1;
+
+        // Room for as many removed entries as live ones before compacting
+        ringKeys = new long[maxEntries * 2];
+        ringTimes = new long[maxEntries * 2];
+    }
+
+    /**
+     * Record a transaction hash.
+     *
+     * @param txHash
+     *            the 0x prefixed transaction hash
+     * @param now
+     *            the current time in milliseconds
+     * @return true if the hash has not been seen within the time to live
+     */
+    synchronized boolean add(String txHash, long now) {
+        long key = toKey(txHash);
+
+        evictExpired(now);
+        if (indexOf(key) >= 0)
+            return false;
+
+        while (size == maxEntries)
+            evictOldest();
+        if (ringSize == ringKeys.length)
+            compactRing();
+
+        int tail = (ringHead + ringSize) % ringKeys.length;
+        insert(key, tail);
+        ringKeys[tail] = key;
+        ringTimes[tail] = now;
+        ringSize++;
+        return true;
+    }
+
+    /**
+     * Forget a transaction hash, so the next announcement of it is let through.
+     *
+     * @param txHash
+     *            the 0x prefixed transaction hash
+     */
+    synchronized void remove(String txHash) {
+        int i = indexOf(toKey(txHash));
+        if (i >= 0)
+            removeAt(i);
+    }
+
+    synchronized boolean contains(String txHash) {
+        return indexOf(toKey(txHash)) >= 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void evictExpired(long now) {
+        while (ringSize > 0 && now - ringTimes[ringHead] >= ttlMillis)
+            evictOldest();
+    }
+
+    private void evictOldest() {
+        int i = indexOf(ringKeys[ringHead]);
+        if (i >= 0 && tableRing[i] == ringHead)
+            removeAt(i);
+        ringHead = (ringHead + 1) % ringKeys.length;
+        ringSize--;
+    }
+
+    /**
+     * Drop ring entries whose key was removed, keeping the rest in order from the head.
+     */
+    private void compactRing() {
+        int kept = 0;
+        for (int k = 0; k < ringSize; k++) {
+            int from = (ringHead + k) % ringKeys.length;
+            int i = indexOf(ringKeys[from]);
+            if (i >= 0 && tableRing[i] == from) {
+                int to = (ringHead + kept) % ringKeys.length;
+                ringKeys[to] = ringKeys[from];
+                ringTimes[to] = ringTimes[from];
+                tableRing[i] = to;
+                kept++;
+            }
+        }
+        ringSize = kept;
+    }
+
+    private int indexOf(long key) {
+        for (int i = slot(key); table[i] != EMPTY; i = (i + 1) & mask) {
+            if (table[i] == key)
+                return i;
+        }
+        return -1;
+    }
+
+    private void insert(long key, int ringIndex) {
+        int i = slot(key);
+        while (table[i] != EMPTY)
+            i = (i + 1) & mask;
+        table[i] = key;
+        tableRing[i] = ringIndex;
+        size++;
+    }
+
+    private void removeAt(int i) {
+        // Shift later entries of the probe sequence back so lookups never stop at a hole
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (table[j] == EMPTY)
+                break;
+            int home = slot(table[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                tableRing[i] = tableRing[j];
+                i = j;
+            }
+        }
+        table[i] = EMPTY;
+        size--;
+    }
+
+    int slot(long key) {
+        // Keccak hashes are already uniformly distributed, mixing only guards against odd input
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    static long toKey(String txHash) {
+        String hex = txHash.startsWith("0x") ? txHash.substring(2) : txHash;
+        long key = Long.parseUnsignedLong(hex.substring(0, Math.min(16, hex.length())), 16);
+        // Zero marks an empty slot
+        return key == EMPTY ? 1L : key;
+    }
+}
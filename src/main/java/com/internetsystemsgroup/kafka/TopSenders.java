@@ -0,0 +1,113 @@
+/*
+    MIT License
+    Copyright 2018 Internet Systems Group, Inc.
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+    associated documentation files (the "Software"), to deal in the Software without restriction,
+    including without limitation the rights to use, copy, modify, merge, publish, distribute,
+    sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+    is furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all copies or
+    substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+    BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+    NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+    DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.internetsystemsgroup.kafka;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TopSenders tracks the addresses sending the most transactions using the Misra-Gries summary.
+ *
+ * At most {@code capacity} addresses are tracked.  Counts never overestimate, and are low by at
+ * most N/(capacity + 1), where N is the number of transactions summarized.  The same bound holds
+ * after any number of merges, so any address sending more than N/(capacity + 1) transactions in a
+ * window is always kept.
+ */
+class TopSenders {
+    private final int capacity;
+    private final Map<String, long[]> counts;
+
+    TopSenders(int capacity) {
+        this.capacity = capacity;
+        this.counts = new HashMap<>(capacity * 2);
+    }
+
+    void add(String address) {
+        long[] c = counts.get(address);
+        if (c != null) {
+            c[0]++;
+            return;
+        }
+
+        if (counts.size() < capacity) {
+            counts.put(address, new long[] { 1 });
+            return;
+        }
+
+        // The new address and one transaction of every tracked address cancel out
+        Iterator<long[]> it = counts.values().iterator();
+        while (it.hasNext()) {
+            if (--it.next()[0] == 0)
+                it.remove();
+        }
+    }
+
+    /**
+     * Merge another summary into this one by summing the counts, then subtracting the
+     * (capacity + 1)th largest count so at most {@code capacity} addresses remain.
+     */
+    void merge(TopSenders other) {
+        for (Map.Entry<String, long[]> e : other.counts.entrySet()) {
+            long[] c = counts.get(e.getKey());
+            if (c != null)
+                c[0] += e.getValue()[0];
+            else
+                counts.put(e.getKey(), new long[] { e.getValue()[0] });
+        }
+
+        if (counts.size() <= capacity)
+            return;
+
+        long[] values = new long[counts.size()];
+        int i = 0;
+        for (long[] c : counts.values())
+            values[i++] = c[0];
+        Arrays.sort(values);
+        long cut = values[values.length - capacity - 1];
+
+        Iterator<long[]> it = counts.values().iterator();
+        while (it.hasNext()) {
+            long[] c = it.next();
+            c[0] -= cut;
+            if (c[0] <= 0)
+                it.remove();
+        }
+    }
+
+    void reset() {
+        counts.clear();
+    }
+
+    /**
+     * @return up to {@code n} addresses with their estimated counts, highest first
+     */
+    List<Map.Entry<String, Long>> top(int n) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.size());
+        for (Map.Entry<String, long[]> e : counts.entrySet())
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()[0]));
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return entries.size() > n ? entries.subList(0, n) : entries;
+    }
+}
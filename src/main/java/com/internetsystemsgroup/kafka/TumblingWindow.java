@@ -0,0 +1,68 @@
+/*
+    MIT License
+    Copyright 2018 Internet Systems Group, Inc.
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+    associated documentation files (the "Software"), to deal in the Software without restriction,
+    including without limitation the rights to use, copy, modify, merge, publish, distribute,
+    sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+    is furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all copies or
+    substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+    BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+    NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+    DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.internetsystemsgroup.kafka;
+
+/**
+ * TumblingWindow rolls block aggregates up into fixed, non-overlapping windows, aligned either to
+ * multiples of a block count or to multiples of a duration of block time.
+ */
+class TumblingWindow {
+    private final String kind;
+    private final long size;
+    private final boolean byTime;
+    private final BlockAggregate aggregate;
+
+    private TumblingWindow(String kind, long size, boolean byTime, int topSenders) {
+        this.kind = kind;
+        this.size = size;
+        this.byTime = byTime;
+        this.aggregate = new BlockAggregate(topSenders);
+    }
+
+    static TumblingWindow ofBlocks(long blocks, int topSenders) {
+        return new TumblingWindow("blocks", blocks, false, topSenders);
+    }
+
+    static TumblingWindow ofMillis(long millis, int topSenders) {
+        return new TumblingWindow("time", millis, true, topSenders);
+    }
+
+    /**
+     * Add a block to the window.  A window is only known to be complete once the first block past
+     * its end arrives, so that is when it is returned.
+     *
+     * @param block
+     *            the aggregate of a single block
+     * @return the formatted window completed by this block, or null
+     */
+    String add(BlockAggregate block) {
+        String completed = null;
+        if (!aggregate.isEmpty() && windowOf(aggregate) != windowOf(block)) {
+            completed = aggregate.format(kind);
+            aggregate.reset();
+        }
+        aggregate.merge(block);
+        return completed;
+    }
+
+    private long windowOf(BlockAggregate a) {
+        return byTime ? a.getFirstTimestamp() * 1000 / size : a.getFirstBlock() / size;
+    }
+}
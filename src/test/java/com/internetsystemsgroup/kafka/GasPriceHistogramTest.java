@@ -0,0 +1,66 @@
+package com.internetsystemsgroup.kafka;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class GasPriceHistogramTest {
+
+    private static final double RELATIVE_ERROR = 0.01;
+
+    @Test
+    public void emptyHistogramReturnsZero() {
+        assertThat(new GasPriceHistogram().quantile(0.5), equalTo(0L));
+    }
+
+    @Test
+    public void quantilesAreWithinRelativeError() {
+        Random random = new Random(7);
+        GasPriceHistogram histogram = new GasPriceHistogram();
+        long[] prices = new long[10000];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = (long) (2e9 * Math.exp(random.nextGaussian() * 2));
+            histogram.add(prices[i]);
+        }
+        Arrays.sort(prices);
+
+        for (double q : new double[] { 0, 0.5, 0.9, 0.99, 1 })
+            assertWithinError(histogram.quantile(q), prices[(int) (q * (prices.length - 1))]);
+    }
+
+    @Test
+    public void mergeMatchesSingleHistogram() {
+        Random random = new Random(11);
+        GasPriceHistogram all = new GasPriceHistogram();
+        GasPriceHistogram first = new GasPriceHistogram();
+        GasPriceHistogram second = new GasPriceHistogram();
+        for (int i = 0; i < 5000; i++) {
+            long price = 1000000000L + random.nextInt(1000000000);
+            all.add(price);
+            (i % 3 == 0 ? first : second).add(price);
+        }
+        first.merge(second);
+
+        for (double q : new double[] { 0, 0.5, 0.9, 0.99, 1 })
+            assertThat(first.quantile(q), equalTo(all.quantile(q)));
+    }
+
+    @Test
+    public void zeroPricesAreCounted() {
+        GasPriceHistogram histogram = new GasPriceHistogram();
+        histogram.add(0);
+        histogram.add(0);
+        histogram.add(5000000000L);
+
+        assertThat(histogram.quantile(0.5), equalTo(0L));
+        assertWithinError(histogram.quantile(1), 5000000000L);
+    }
+
+    private static void assertWithinError(long estimate, long actual) {
+        assertThat(Math.abs(estimate - actual) / (double) actual, lessThanOrEqualTo(RELATIVE_ERROR));
+    }
+}
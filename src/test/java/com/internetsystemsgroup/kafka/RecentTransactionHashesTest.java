@@ -0,0 +1,154 @@
+package com.internetsystemsgroup.kafka;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RecentTransactionHashesTest {
+
+    @Test
+    public void addRejectsDuplicates() {
+        RecentTransactionHashes hashes = new RecentTransactionHashes(10, 1000);
+
+        assertThat(hashes.add(hash(1), 0), is(true));
+        assertThat(hashes.add(hash(2), 0), is(true));
+        assertThat(hashes.add(hash(1), 1), is(false));
+        assertThat(hashes.size(), equalTo(2));
+    }
+
+    @Test
+    public void hashesExpireAfterTtl() {
+        RecentTransactionHashes hashes = new RecentTransactionHashes(10, 100);
+
+        hashes.add(hash(1), 0);
+        hashes.add(hash(2), 50);
+
+        assertThat(hashes.add(hash(1), 99), is(false));
+        assertThat(hashes.add(hash(1), 100), is(true));
+        assertThat(hashes.contains(hash(2)), is(true));
+        assertThat(hashes.add(hash(3), 150), is(true));
+        assertThat(hashes.contains(hash(2)), is(false));
+    }
+
+    @Test
+    public void oldestHashIsEvictedAtCapacity() {
+        RecentTransactionHashes hashes = new RecentTransactionHashes(3, 1000);
+
+        hashes.add(hash(1), 0);
+        hashes.add(hash(2), 0);
+        hashes.add(hash(3), 0);
+        hashes.add(hash(4), 0);
+
+        assertThat(hashes.contains(hash(1)), is(false));
+        assertThat(hashes.contains(hash(2)), is(true));
+        assertThat(hashes.contains(hash(4)), is(true));
+        assertThat(hashes.size(), equalTo(3));
+    }
+
+    @Test
+    public void removeKeepsLaterEntriesOfProbeChainReachable() {
+        RecentTransactionHashes hashes = new RecentTransactionHashes(8, 1000);
+        List<String> chain = collidingHashes(hashes, 3);
+
+        for (String h : chain)
+            hashes.add(h, 0);
+        hashes.remove(chain.get(0));
+
+        assertThat(hashes.contains(chain.get(0)), is(false));
+        assertThat(hashes.contains(chain.get(1)), is(true));
+        assertThat(hashes.contains(chain.get(2)), is(true));
+        assertThat(hashes.add(chain.get(0), 1), is(true));
+    }
+
+    @Test
+    public void removedHashIsNotEvictedByItsStaleRingEntry() {
+        RecentTransactionHashes hashes = new RecentTransactionHashes(2, 1000);
+
+        hashes.add(hash(1), 0);
+        hashes.remove(hash(1));
+        hashes.add(hash(1), 0);
+        // Pushes the stale ring entry for hash 1 out, which must not remove the newer add
+        hashes.add(hash(2), 0);
+
+        assertThat(hashes.contains(hash(1)), is(true));
+        assertThat(hashes.contains(hash(2)), is(true));
+    }
+
+    @Test
+    public void removedHashesDoNotEvictLiveOnes() {
+        RecentTransactionHashes hashes = new RecentTransactionHashes(2000, 1000000);
+
+        for (int i = 1; i <= 1000; i++)
+            hashes.add(hash(i), 0);
+        // Lookups failing for many more hashes than the set can hold
+        for (int i = 1001; i <= 6000; i++) {
+            hashes.add(hash(i), 0);
+            hashes.remove(hash(i));
+        }
+
+        assertThat(hashes.size(), equalTo(1000));
+        for (int i = 1; i <= 1000; i++)
+            assertThat(hashes.contains(hash(i)), is(true));
+    }
+
+    @Test
+    public void matchesInsertionOrderedModel() {
+        final int maxEntries = 100;
+        final long ttl = 50;
+        RecentTransactionHashes hashes = new RecentTransactionHashes(maxEntries, ttl);
+        LinkedHashMap<String, Long> model = new LinkedHashMap<>();
+        Random random = new Random(42);
+
+        long now = 0;
+        for (int i = 0; i < 200000; i++) {
+            now += random.nextInt(4) == 0 ? 1 : 0;
+            String h = hash(1 + random.nextInt(300));
+
+            Iterator<Map.Entry<String, Long>> it = model.entrySet().iterator();
+            while (it.hasNext() && now - it.next().getValue() >= ttl)
+                it.remove();
+            boolean expected = !model.containsKey(h);
+            if (expected) {
+                if (model.size() == maxEntries)
+                    model.remove(model.keySet().iterator().next());
+                model.put(h, now);
+            }
+
+            assertThat(hashes.add(h, now), equalTo(expected));
+
+            if (random.nextInt(3) == 0) {
+                String removed = hash(1 + random.nextInt(300));
+                model.remove(removed);
+                hashes.remove(removed);
+            }
+        }
+        assertThat(hashes.size(), equalTo(model.size()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyEntriesIsRejected() {
+        new RecentTransactionHashes(RecentTransactionHashes.MAX_ENTRIES + 1, 1000);
+    }
+
+    private static String hash(long n) {
+        return String.format("0x%016x%048x", n * 0x9E3779B97F4A7C15L, 0);
+    }
+
+    private static List<String> collidingHashes(RecentTransactionHashes hashes, int count) {
+        List<String> result = new ArrayList<>();
+        int slot = hashes.slot(RecentTransactionHashes.toKey(hash(1)));
+        for (long n = 1; result.size() < count; n++) {
+            if (hashes.slot(RecentTransactionHashes.toKey(hash(n))) == slot)
+                result.add(hash(n));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.internetsystemsgroup.kafka;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TopSendersTest {
+
+    @Test
+    public void countsAreExactBelowCapacity() {
+        TopSenders senders = new TopSenders(10);
+        senders.add("a");
+        senders.add("b");
+        senders.add("a");
+
+        List<Map.Entry<String, Long>> top = senders.top(2);
+        assertThat(top.get(0).getKey(), equalTo("a"));
+        assertThat(top.get(0).getValue(), equalTo(2L));
+        assertThat(top.get(1).getKey(), equalTo("b"));
+        assertThat(top.get(1).getValue(), equalTo(1L));
+    }
+
+    @Test
+    public void topIsLimitedToRequestedSize() {
+        TopSenders senders = new TopSenders(10);
+        for (int i = 0; i < 5; i++)
+            senders.add("a" + i);
+
+        assertThat(senders.top(3).size(), equalTo(3));
+    }
+
+    @Test
+    public void mergedCountsStayWithinErrorBound() {
+        final int capacity = 20;
+        Random random = new Random(3);
+        TopSenders window = new TopSenders(capacity);
+        Map<String, Long> actual = new HashMap<>();
+        long total = 0;
+
+        // Many small summaries merged into one window, as with per block aggregates
+        for (int block = 0; block < 100; block++) {
+            TopSenders summary = new TopSenders(capacity);
+            for (int i = 0; i < 200; i++) {
+                String sender = random.nextInt(5) == 0 ? "whale" + random.nextInt(3) : "a" + random.nextInt(5000);
+                summary.add(sender);
+                actual.merge(sender, 1L, Long::sum);
+                total++;
+            }
+            window.merge(summary);
+        }
+
+        long bound = total / (capacity + 1);
+        List<Map.Entry<String, Long>> top = window.top(capacity);
+        assertThat(top.size(), lessThanOrEqualTo(capacity));
+        for (Map.Entry<String, Long> e : top) {
+            assertThat(e.getValue(), lessThanOrEqualTo(actual.get(e.getKey())));
+            assertThat(e.getValue(), greaterThanOrEqualTo(actual.get(e.getKey()) - bound));
+        }
+
+        // Every sender above the bound is kept
+        for (int i = 0; i < 3; i++)
+            assertThat(contains(top, "whale" + i), is(true));
+    }
+
+    private static boolean contains(List<Map.Entry<String, Long>> entries, String key) {
+        for (Map.Entry<String, Long> e : entries) {
+            if (e.getKey().equals(key))
+                return true;
+        }
+        return false;
+    }
+}
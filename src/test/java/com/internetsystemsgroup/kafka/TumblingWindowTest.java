@@ -0,0 +1,69 @@
+package com.internetsystemsgroup.kafka;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TumblingWindowTest {
+
+    @Test
+    public void blockWindowIsWrittenWhenNextWindowStarts() {
+        TumblingWindow window = TumblingWindow.ofBlocks(100, 1);
+        List<String> completed = new ArrayList<>();
+
+        for (long number = 150; number < 350; number++) {
+            String line = window.add(block(number, number * 15));
+            if (line != null)
+                completed.add(line);
+        }
+
+        assertThat(completed.size(), equalTo(2));
+        assertWindow(completed.get(0), "blocks", 150, 199, 50);
+        assertWindow(completed.get(1), "blocks", 200, 299, 100);
+    }
+
+    @Test
+    public void lastBlockOfWindowDoesNotCompleteIt() {
+        TumblingWindow window = TumblingWindow.ofBlocks(100, 1);
+
+        assertThat(window.add(block(0, 0)), nullValue());
+        assertThat(window.add(block(99, 0)), nullValue());
+        assertWindow(window.add(block(100, 0)), "blocks", 0, 99, 2);
+    }
+
+    @Test
+    public void timeWindowIsAlignedToBlockTime() {
+        TumblingWindow window = TumblingWindow.ofMillis(60 * 1000L, 1);
+
+        // Timestamps are in seconds
+        assertThat(window.add(block(1, 30)), nullValue());
+        assertThat(window.add(block(2, 59)), nullValue());
+        assertWindow(window.add(block(3, 60)), "time", 1, 2, 2);
+        assertThat(window.add(block(4, 119)), nullValue());
+        assertWindow(window.add(block(5, 180)), "time", 3, 4, 2);
+    }
+
+    private static BlockAggregate block(long number, long timestamp) {
+        BlockAggregate aggregate = new BlockAggregate(1);
+        aggregate.addBlock(number, timestamp, BigInteger.valueOf(21000));
+        aggregate.addTransaction("0xsender", 1000000000L);
+        return aggregate;
+    }
+
+    private static void assertWindow(String line, String kind, long firstBlock, long lastBlock, long blocks) {
+        assertThat(line, notNullValue());
+        String[] fields = line.split(",");
+        assertThat(fields[0], equalTo(kind));
+        assertThat(Long.parseLong(fields[1]), equalTo(firstBlock));
+        assertThat(Long.parseLong(fields[2]), equalTo(lastBlock));
+        // One transaction per block
+        assertThat(Long.parseLong(fields[5]), equalTo(blocks));
+        assertThat(new BigInteger(fields[6]), equalTo(BigInteger.valueOf(21000 * blocks)));
+        assertThat(fields[10], equalTo("0xsender:" + blocks));
+    }
+}